@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+public final class FoamFixConfig {
+	public static boolean dedupShapeCaches = true;
+	public static boolean lazyModelBaking = false;
+	public static int lazyModelCacheSize = 8192;
+	public static boolean incrementalModelReload = false;
+	public static boolean dedupUnbakedModels = true;
+	public static boolean jfrEvents = true;
+	public static boolean stateLayoutProfiling = false;
+
+	private FoamFixConfig() {
+
+	}
+
+	static {
+		load(new File(FabricLoader.getInstance().getConfigDirectory(), "foamfix.properties"));
+	}
+
+	private static void load(File file) {
+		Properties properties = new Properties();
+
+		if (file.exists()) {
+			try (Reader reader = new FileReader(file)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				System.err.println("[FoamFix/FoamFixConfig] Could not read " + file + ", using defaults!");
+				e.printStackTrace();
+			}
+		}
+
+		dedupShapeCaches = getBoolean(properties, "dedupShapeCaches", dedupShapeCaches);
+		lazyModelBaking = getBoolean(properties, "lazyModelBaking", lazyModelBaking);
+		lazyModelCacheSize = getInt(properties, "lazyModelCacheSize", lazyModelCacheSize);
+		incrementalModelReload = getBoolean(properties, "incrementalModelReload", incrementalModelReload);
+		dedupUnbakedModels = getBoolean(properties, "dedupUnbakedModels", dedupUnbakedModels);
+		jfrEvents = getBoolean(properties, "jfrEvents", jfrEvents);
+		stateLayoutProfiling = getBoolean(properties, "stateLayoutProfiling", stateLayoutProfiling);
+
+		try (Writer writer = new FileWriter(file)) {
+			properties.store(writer, "FoamFix configuration");
+		} catch (IOException e) {
+			System.err.println("[FoamFix/FoamFixConfig] Could not write " + file + "!");
+			e.printStackTrace();
+		}
+	}
+
+	private static boolean getBoolean(Properties properties, String key, boolean defaultValue) {
+		String value = properties.getProperty(key);
+		if (value == null) {
+			properties.setProperty(key, Boolean.toString(defaultValue));
+			return defaultValue;
+		} else {
+			return Boolean.parseBoolean(value.trim());
+		}
+	}
+
+	private static int getInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				System.err.println("[FoamFix/FoamFixConfig] Invalid value for " + key + ": " + value + ", using default!");
+			}
+		}
+
+		properties.setProperty(key, Integer.toString(defaultValue));
+		return defaultValue;
+	}
+}
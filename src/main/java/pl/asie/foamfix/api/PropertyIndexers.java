@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package pl.asie.foamfix.api;
+
+import net.minecraft.state.property.Property;
+import org.apache.commons.lang3.ClassUtils;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lets mods supply a PropertyIndexer for their own Property subclasses. Without one,
+ * properties FoamFix does not recognize are looked up through a hash map.
+ *
+ * Indexers must be registered before any block using the property is constructed.
+ */
+public final class PropertyIndexers {
+	private static final Map<Class<?>, Function<Property<?>, PropertyIndexer>> factories = new IdentityHashMap<>();
+
+	private PropertyIndexers() {
+
+	}
+
+	/**
+	 * @param propertyClass The property class or interface; subclasses and implementations
+	 *                      are covered too, unless a more specific class has an indexer
+	 *                      registered. Superclasses are checked before interfaces.
+	 * @param factory Creates an indexer for a given property, or returns null to let
+	 *                FoamFix handle it.
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <P extends Property<?>> void register(Class<P> propertyClass, Function<P, PropertyIndexer> factory) {
+		factories.put(propertyClass, (Function<Property<?>, PropertyIndexer>) (Function) factory);
+	}
+
+	public static synchronized PropertyIndexer create(Property<?> property) {
+		if (factories.isEmpty()) {
+			return null;
+		}
+
+		for (Class<?> c = property.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+			Function<Property<?>, PropertyIndexer> factory = factories.get(c);
+			if (factory != null) {
+				return factory.apply(property);
+			}
+		}
+
+		for (Class<?> c : ClassUtils.getAllInterfaces(property.getClass())) {
+			Function<Property<?>, PropertyIndexer> factory = factories.get(c);
+			if (factory != null) {
+				return factory.apply(property);
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.ModelBakeSettings;
+import net.minecraft.client.render.model.UnbakedModel;
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.client.util.ModelIdentifier;
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Carries top-level baked models over from the previous resource reload if none of
+ * the JSON files they were loaded from have changed; their sprites are remapped onto
+ * the new atlas instead of rebaking them.
+ *
+ * Textures only affect the baked quads of generated item models - everywhere else,
+ * the quads depend on a sprite's position in the atlas, not on its contents. Whether
+ * a texture exists is always part of the fingerprint, as a missing texture is baked
+ * with the missing sprite instead.
+ */
+public class IncrementalModelReloader {
+	private static final Identifier GENERATED_MARKER = new Identifier("builtin/generated");
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static Map<Pair<Identifier, ModelBakeSettings>, Entry> previousModels = new HashMap<>();
+	private static Map<BakedModel, Object> previousCacheKeys = new IdentityHashMap<>();
+
+	private final ResourceManager resourceManager;
+	private final Map<Object, BakedModel> bakedModelCache;
+	private final Function<Identifier, UnbakedModel> unbakedModelGetter;
+	private final SpriteRemapper remapper;
+	private final Map<Identifier, Long> resourceHashes = new HashMap<>();
+	private final Map<Identifier, Boolean> resourceExistence = new HashMap<>();
+	private final Map<Pair<Identifier, ModelBakeSettings>, Entry> models = new HashMap<>();
+	private int reused, rebaked;
+
+	private static class Entry {
+		private final BakedModel model;
+		private final long fingerprint;
+
+		private Entry(BakedModel model, long fingerprint) {
+			this.model = model;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	public IncrementalModelReloader(ResourceManager resourceManager, SpriteAtlasTexture atlas, Map<Object, BakedModel> bakedModelCache, Function<Identifier, UnbakedModel> unbakedModelGetter) {
+		this.resourceManager = resourceManager;
+		this.bakedModelCache = bakedModelCache;
+		this.unbakedModelGetter = unbakedModelGetter;
+		this.remapper = new SpriteRemapper(atlas, previousCacheKeys, bakedModelCache);
+	}
+
+	public BakedModel bake(Identifier identifier, ModelBakeSettings settings, Function<Identifier, BakedModel> baker) {
+		Pair<Identifier, ModelBakeSettings> key = Pair.of(identifier, settings);
+		long fingerprint = getFingerprint(identifier);
+		BakedModel model = null;
+
+		Entry previous = previousModels.get(key);
+		if (previous != null && previous.fingerprint == fingerprint) {
+			model = remapper.remap(previous.model);
+		}
+
+		if (model != null) {
+			reused++;
+		} else {
+			model = baker.apply(identifier);
+			rebaked++;
+		}
+
+		if (model != null) {
+			models.put(key, new Entry(model, fingerprint));
+		}
+		return model;
+	}
+
+	public void finish() {
+		if (reused > 0) {
+			System.out.println("[FoamFix/IncrementalModelReloader] Reused " + reused + " models, rebaked " + rebaked + " models.");
+		}
+
+		Map<BakedModel, Object> cacheKeys = new IdentityHashMap<>();
+		for (Map.Entry<Object, BakedModel> entry : bakedModelCache.entrySet()) {
+			cacheKeys.put(entry.getValue(), entry.getKey());
+		}
+
+		previousModels = models;
+		previousCacheKeys = cacheKeys;
+	}
+
+	private long getFingerprint(Identifier identifier) {
+		long hash = FNV_OFFSET;
+		boolean generated = false;
+
+		Set<Identifier> visited = new HashSet<>();
+		Deque<Identifier> queue = new ArrayDeque<>();
+		queue.add(identifier);
+
+		while (!queue.isEmpty()) {
+			Identifier id = queue.poll();
+			if (!visited.add(id)) {
+				continue;
+			}
+
+			if (GENERATED_MARKER.equals(id)) {
+				generated = true;
+			}
+
+			hash = hash * 31 + getResourceHash(getJsonLocation(id));
+			UnbakedModel model = unbakedModelGetter.apply(id);
+			if (model != null) {
+				queue.addAll(model.getModelDependencies());
+			}
+		}
+
+		UnbakedModel model = unbakedModelGetter.apply(identifier);
+		if (model != null) {
+			List<Identifier> textures = new ArrayList<>(model.getTextureDependencies(unbakedModelGetter, new HashSet<>()));
+			Collections.sort(textures);
+
+			for (Identifier texture : textures) {
+				Identifier location = new Identifier(texture.getNamespace(), "textures/" + texture.getPath() + ".png");
+				hash = hash * 31 + (generated ? getResourceHash(location) : (resourceExists(location) ? 1 : 0));
+			}
+		}
+
+		return hash;
+	}
+
+	private static Identifier getJsonLocation(Identifier id) {
+		if (id instanceof ModelIdentifier) {
+			if ("inventory".equals(((ModelIdentifier) id).getVariant())) {
+				return new Identifier(id.getNamespace(), "models/item/" + id.getPath() + ".json");
+			} else {
+				return new Identifier(id.getNamespace(), "blockstates/" + id.getPath() + ".json");
+			}
+		} else {
+			return new Identifier(id.getNamespace(), "models/" + id.getPath() + ".json");
+		}
+	}
+
+	private boolean resourceExists(Identifier location) {
+		return resourceExistence.computeIfAbsent(location, this::checkResource);
+	}
+
+	private boolean checkResource(Identifier location) {
+		try {
+			for (Resource resource : resourceManager.getAllResources(location)) {
+				resource.close();
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private long getResourceHash(Identifier location) {
+		return resourceHashes.computeIfAbsent(location, this::hashResource);
+	}
+
+	private long hashResource(Identifier location) {
+		long hash = FNV_OFFSET;
+
+		try {
+			for (Resource resource : resourceManager.getAllResources(location)) {
+				try (Resource r = resource; InputStream stream = r.getInputStream()) {
+					for (byte b : IOUtils.toByteArray(stream)) {
+						hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+					}
+				}
+			}
+		} catch (IOException e) {
+			// missing resources (builtin models, for instance) all share the empty hash
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.ModelBakeSettings;
+import net.minecraft.client.render.model.json.ModelItemPropertyOverrideList;
+import net.minecraft.client.render.model.json.ModelTransformation;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Direction;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A stand-in for a top-level baked model, which is only baked on first use
+ * and can be dropped again by its LazyBakedModelCache.
+ */
+public class LazyBakedModel implements BakedModel {
+	private final LazyModelBaker baker;
+	private final LazyBakedModelCache cache;
+	private final Identifier identifier;
+	private final ModelBakeSettings settings;
+	private volatile BakedModel model;
+	boolean accessed;
+
+	public LazyBakedModel(LazyModelBaker baker, LazyBakedModelCache cache, Identifier identifier, ModelBakeSettings settings) {
+		this.baker = baker;
+		this.cache = cache;
+		this.identifier = identifier;
+		this.settings = settings;
+	}
+
+	public BakedModel getModel() {
+		BakedModel m = model;
+		if (m == null) {
+			return bake();
+		} else {
+			accessed = true;
+			return m;
+		}
+	}
+
+	private synchronized BakedModel bake() {
+		BakedModel m = model;
+		if (m == null) {
+			m = baker.foamfix_bakeEagerly(identifier, settings);
+			model = m;
+			accessed = true;
+			cache.add(this);
+		}
+		return m;
+	}
+
+	void evict() {
+		model = null;
+	}
+
+	@Override
+	public List<BakedQuad> getQuads(BlockState state, Direction face, Random random) {
+		return getModel().getQuads(state, face, random);
+	}
+
+	@Override
+	public boolean useAmbientOcclusion() {
+		return getModel().useAmbientOcclusion();
+	}
+
+	@Override
+	public boolean hasDepthInGui() {
+		return getModel().hasDepthInGui();
+	}
+
+	@Override
+	public boolean isBuiltin() {
+		return getModel().isBuiltin();
+	}
+
+	@Override
+	public Sprite getSprite() {
+		return getModel().getSprite();
+	}
+
+	@Override
+	public ModelTransformation getTransformation() {
+		return getModel().getTransformation();
+	}
+
+	@Override
+	public ModelItemPropertyOverrideList getItemPropertyOverrides() {
+		return getModel().getItemPropertyOverrides();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Bounds the number of lazily baked models kept resident, using the CLOCK
+ * (second chance) policy - accessing a model only sets a flag, so the render
+ * path never has to take a lock.
+ */
+public class LazyBakedModelCache {
+	private static LazyBakedModelCache current;
+
+	private final Deque<LazyBakedModel> resident = new ArrayDeque<>();
+	private final int maxSize;
+	private int baked, evicted;
+
+	private LazyBakedModelCache(int maxSize) {
+		this.maxSize = Math.max(maxSize, 1);
+	}
+
+	/**
+	 * Creates the cache for a new set of models, reporting how the previous one fared.
+	 */
+	public static synchronized LazyBakedModelCache replace(int maxSize) {
+		if (current != null) {
+			System.out.println("[FoamFix/LazyBakedModelCache] Previous model set: " + current);
+		}
+
+		current = new LazyBakedModelCache(maxSize);
+		return current;
+	}
+
+	synchronized void add(LazyBakedModel model) {
+		resident.addLast(model);
+		baked++;
+
+		while (resident.size() > maxSize) {
+			LazyBakedModel candidate = resident.pollFirst();
+			if (candidate.accessed) {
+				candidate.accessed = false;
+				resident.addLast(candidate);
+			} else {
+				candidate.evict();
+				evicted++;
+			}
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return resident.size() + " resident, " + baked + " baked, " + evicted + " evicted";
+	}
+}
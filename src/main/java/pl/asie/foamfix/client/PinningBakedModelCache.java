@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.MapMaker;
+import net.minecraft.client.render.model.BakedModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A weak-valued replacement for ModelLoader's baked model cache, used while baking
+ * lazily. Inner models stay shared for as long as some resident model uses them.
+ *
+ * ModelLoader.bake() checks the cache with containsKey() and only then calls get(),
+ * so any value seen by containsKey() is pinned until {@link #unpinAll()} - otherwise
+ * a collection in between would make bake() return null.
+ */
+public class PinningBakedModelCache extends ForwardingMap<Object, BakedModel> {
+	private final Map<Object, BakedModel> delegate = new MapMaker().weakValues().makeMap();
+	private final List<BakedModel> pinned = new ArrayList<>();
+
+	public PinningBakedModelCache(Map<Object, BakedModel> contents) {
+		delegate.putAll(contents);
+	}
+
+	@Override
+	protected Map<Object, BakedModel> delegate() {
+		return delegate;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		BakedModel model = delegate.get(key);
+		if (model != null) {
+			pinned.add(model);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	public void unpinAll() {
+		pinned.clear();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves baked quads from the sprites of a previous atlas onto the sprites
+ * of the same name in a newly stitched one.
+ *
+ * Every model, quad list and quad is remapped at most once, so models shared
+ * between several top-level models stay shared. Models which were cached by
+ * the previous ModelLoader are put back into the new one's cache under the
+ * same key, letting models which do get rebaked share them as well.
+ */
+public class SpriteRemapper {
+	private static final int UV_OFFSET = 4;
+
+	private final SpriteAtlasTexture atlas;
+	private final Map<BakedModel, Object> previousCacheKeys;
+	private final Map<Object, BakedModel> bakedModelCache;
+	private final Map<Sprite, Sprite> spriteMap = new IdentityHashMap<>();
+	private final Map<BakedModel, BakedModel> modelMap = new IdentityHashMap<>();
+	private final Map<List<BakedQuad>, List<BakedQuad>> quadListMap = new IdentityHashMap<>();
+	private final Map<BakedQuad, BakedQuad> quadMap = new IdentityHashMap<>();
+
+	public SpriteRemapper(SpriteAtlasTexture atlas, Map<BakedModel, Object> previousCacheKeys, Map<Object, BakedModel> bakedModelCache) {
+		this.atlas = atlas;
+		this.previousCacheKeys = previousCacheKeys;
+		this.bakedModelCache = bakedModelCache;
+	}
+
+	public BakedModel remap(BakedModel model) {
+		if (modelMap.containsKey(model)) {
+			return modelMap.get(model);
+		}
+
+		Object cacheKey = previousCacheKeys.get(model);
+		BakedModel result = cacheKey != null ? bakedModelCache.get(cacheKey) : null;
+
+		if (result == null && model instanceof RemappableBakedModel) {
+			result = ((RemappableBakedModel) model).foamfix_remap(this);
+			if (result != null && cacheKey != null) {
+				bakedModelCache.put(cacheKey, result);
+			}
+		}
+
+		// null results are remembered too, so a model which cannot be remapped is only tried once
+		modelMap.put(model, result);
+		return result;
+	}
+
+	public Sprite remap(Sprite sprite) {
+		return spriteMap.computeIfAbsent(sprite, (s) -> atlas.getSprite(s.getId()));
+	}
+
+	public List<BakedQuad> remap(List<BakedQuad> quads) {
+		List<BakedQuad> result = quadListMap.get(quads);
+		if (result == null) {
+			result = new ArrayList<>(quads.size());
+			for (BakedQuad quad : quads) {
+				result.add(remap(quad));
+			}
+			quadListMap.put(quads, result);
+		}
+		return result;
+	}
+
+	public Map<Direction, List<BakedQuad>> remap(Map<Direction, List<BakedQuad>> quads) {
+		Map<Direction, List<BakedQuad>> result = new EnumMap<>(Direction.class);
+		for (Map.Entry<Direction, List<BakedQuad>> entry : quads.entrySet()) {
+			result.put(entry.getKey(), remap(entry.getValue()));
+		}
+		return result;
+	}
+
+	public BakedQuad remap(BakedQuad quad) {
+		return quadMap.computeIfAbsent(quad, this::remapQuad);
+	}
+
+	private BakedQuad remapQuad(BakedQuad quad) {
+		Sprite from = quad.getSprite();
+		Sprite to = remap(from);
+		if (from == to) {
+			return quad;
+		}
+
+		int[] data = quad.getVertexData().clone();
+		int stride = data.length / 4;
+		float fromWidth = from.getMaxU() - from.getMinU();
+		float fromHeight = from.getMaxV() - from.getMinV();
+
+		for (int i = 0; i < 4; i++) {
+			int uPos = i * stride + UV_OFFSET;
+			float u = Float.intBitsToFloat(data[uPos]);
+			float v = Float.intBitsToFloat(data[uPos + 1]);
+			u = fromWidth == 0 ? to.getMinU() : to.getMinU() + (u - from.getMinU()) / fromWidth * (to.getMaxU() - to.getMinU());
+			v = fromHeight == 0 ? to.getMinV() : to.getMinV() + (v - from.getMinV()) / fromHeight * (to.getMaxV() - to.getMinV());
+			data[uPos] = Float.floatToRawIntBits(u);
+			data[uPos + 1] = Float.floatToRawIntBits(v);
+		}
+
+		return new BakedQuad(data, quad.getColorIndex(), quad.getFace(), to);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.client;
+
+import it.unimi.dsi.fastutil.Hash;
+import net.minecraft.client.render.model.json.ModelElement;
+import net.minecraft.client.render.model.json.ModelElementFace;
+import pl.asie.foamfix.util.DeduplicatingStorage;
+import pl.asie.foamfix.util.FoamyEvents;
+import pl.asie.foamfix.util.HashingStrategies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Interns the parts of unbaked JSON models which tend to be repeated across
+ * model files - faces, elements, UV arrays and texture maps. The pools are only
+ * kept for the duration of a single model loading pass; models created outside of
+ * one (such as generated item models baked lazily) are left alone.
+ */
+public final class UnbakedModelDeduplicator {
+	private static final Hash.Strategy<ModelElementFace> FACE_STRATEGY = new Hash.Strategy<ModelElementFace>() {
+		@Override
+		public int hashCode(ModelElementFace o) {
+			return Objects.hash(o.cullFace, o.tintIndex, o.textureId, o.textureData.rotation) * 31 + Arrays.hashCode(o.textureData.uvs);
+		}
+
+		@Override
+		public boolean equals(ModelElementFace a, ModelElementFace b) {
+			if (a == b) {
+				return true;
+			} else if (a == null || b == null) {
+				return false;
+			}
+
+			return a.cullFace == b.cullFace && a.tintIndex == b.tintIndex && Objects.equals(a.textureId, b.textureId)
+					&& a.textureData.rotation == b.textureData.rotation && Arrays.equals(a.textureData.uvs, b.textureData.uvs);
+		}
+	};
+
+	/**
+	 * Faces are compared by identity, so this relies on them being deduplicated first.
+	 * Element rotations do not implement equality, so elements with one are only
+	 * merged if they share the same rotation object.
+	 */
+	private static final Hash.Strategy<ModelElement> ELEMENT_STRATEGY = new Hash.Strategy<ModelElement>() {
+		@Override
+		public int hashCode(ModelElement o) {
+			return Objects.hash(o.from, o.to, o.faces, o.shade) * 31 + System.identityHashCode(o.rotation);
+		}
+
+		@Override
+		public boolean equals(ModelElement a, ModelElement b) {
+			if (a == b) {
+				return true;
+			} else if (a == null || b == null) {
+				return false;
+			}
+
+			return a.rotation == b.rotation && a.shade == b.shade && a.from.equals(b.from) && a.to.equals(b.to) && a.faces.equals(b.faces);
+		}
+	};
+
+	private static final DeduplicatingStorage<float[]> UV_ARRAYS = new DeduplicatingStorage<>("UV array", HashingStrategies.FASTUTIL_FLOAT_ARRAY);
+	private static final DeduplicatingStorage<ModelElementFace> FACES = new DeduplicatingStorage<>("ModelElementFace", FACE_STRATEGY);
+	private static final DeduplicatingStorage<ModelElement> ELEMENTS = new DeduplicatingStorage<>("ModelElement", ELEMENT_STRATEGY);
+	private static final DeduplicatingStorage<Object> STRINGS = new DeduplicatingStorage<>("String", HashingStrategies.FASTUTIL_OBJECT);
+	private static final DeduplicatingStorage<Object> TEXTURE_MAPS = new DeduplicatingStorage<>("texture map", HashingStrategies.FASTUTIL_OBJECT);
+
+	private static boolean active;
+
+	private UnbakedModelDeduplicator() {
+
+	}
+
+	public static synchronized void begin() {
+		active = true;
+	}
+
+	public static synchronized void deduplicateElements(List<ModelElement> elements) {
+		if (!active || !(elements instanceof ArrayList)) {
+			return;
+		}
+
+		for (ModelElement element : elements) {
+			if (element.faces instanceof EnumMap) {
+				element.faces.replaceAll((direction, face) -> deduplicateFace(face));
+			}
+		}
+		elements.replaceAll(ELEMENTS::deduplicate);
+	}
+
+	private static ModelElementFace deduplicateFace(ModelElementFace face) {
+		ModelElementFace result = FACES.deduplicate(face);
+		if (result == face && face.textureData.uvs != null) {
+			face.textureData.uvs = UV_ARRAYS.deduplicate(face.textureData.uvs);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static synchronized Map<String, String> deduplicateTextureMap(Map<String, String> map) {
+		if (!active) {
+			return map;
+		}
+
+		Map<String, String> result = new HashMap<>(map.size());
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			result.put((String) STRINGS.deduplicate(entry.getKey()), (String) STRINGS.deduplicate(entry.getValue()));
+		}
+		return (Map<String, String>) TEXTURE_MAPS.deduplicate(result);
+	}
+
+	public static synchronized void finish() {
+		active = false;
+
+		if (FACES.size() > 0) {
+			System.out.println("[FoamFix/UnbakedModelDeduplicator] " + ELEMENTS + ", " + FACES + ", " + UV_ARRAYS + ", " + TEXTURE_MAPS + ", " + STRINGS);
+			FoamyEvents.deduplicated(ELEMENTS);
+			FoamyEvents.deduplicated(FACES);
+			FoamyEvents.deduplicated(UV_ARRAYS);
+			FoamyEvents.deduplicated(TEXTURE_MAPS);
+			FoamyEvents.deduplicated(STRINGS);
+		}
+
+		UV_ARRAYS.clear();
+		FACES.clear();
+		ELEMENTS.clear();
+		STRINGS.clear();
+		TEXTURE_MAPS.clear();
+	}
+}
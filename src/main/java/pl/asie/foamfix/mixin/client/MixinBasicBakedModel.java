@@ -28,36 +28,88 @@
 
 package pl.asie.foamfix.mixin.client;
 
+import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.client.render.model.BakedQuad;
 import net.minecraft.client.render.model.BasicBakedModel;
 import net.minecraft.client.render.model.json.ModelItemPropertyOverrideList;
 import net.minecraft.client.render.model.json.ModelTransformation;
 import net.minecraft.client.texture.Sprite;
 import net.minecraft.util.math.Direction;
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import pl.asie.foamfix.client.RemappableBakedModel;
+import pl.asie.foamfix.client.SpriteRemapper;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @Mixin(BasicBakedModel.class)
-public class MixinBasicBakedModel {
+public class MixinBasicBakedModel implements RemappableBakedModel {
+	@Shadow
+	@Final
+	protected List<BakedQuad> quads;
+	@Shadow
+	@Final
+	protected Map<Direction, List<BakedQuad>> faceQuads;
+	@Shadow
+	@Final
+	protected boolean usesAo;
+	@Shadow
+	@Final
+	protected boolean depthInGui;
+	@Shadow
+	@Final
+	protected Sprite sprite;
+	@Shadow
+	@Final
+	protected ModelTransformation transformation;
+	@Shadow
+	@Final
+	protected ModelItemPropertyOverrideList itemPropertyOverrides;
+
+	/**
+	 * Constructors cannot be injected into before their super() call, so this is as close to HEAD as it gets.
+	 */
+	@Inject(method = "<init>", at = @At(value = "INVOKE", target = "Ljava/lang/Object;<init>()V", shift = At.Shift.AFTER))
+	public void beforeConstruct(CallbackInfo info) {
+		FoamyEvents.beginBakedModel();
+	}
+
 	/**
 	 * This saves a good 9*7*8=504 bytes per model, in the best case, which isn't bad at all - and it doesn't hurt!
 	 */
 	@Inject(method = "<init>", at = @At("RETURN"))
 	public void construct(List<BakedQuad> list_1, Map<Direction, List<BakedQuad>> map_1, boolean boolean_1, boolean boolean_2, Sprite sprite_1, ModelTransformation modelTransformation_1, ModelItemPropertyOverrideList modelItemPropertyOverrideList_1, CallbackInfo info) {
+		int trimmed = 0;
+
 		if (list_1 instanceof ArrayList) {
 			((ArrayList<BakedQuad>) list_1).trimToSize();
+			trimmed++;
 		}
 
 		for (List<BakedQuad> l : map_1.values()) {
 			if (l instanceof ArrayList) {
 				((ArrayList<BakedQuad>) l).trimToSize();
+				trimmed++;
 			}
 		}
+
+		FoamyEvents.bakedModelCreated(this, map_1.size() + 1, trimmed);
+	}
+
+	@Override
+	public BakedModel foamfix_remap(SpriteRemapper remapper) {
+		if (itemPropertyOverrides != ModelItemPropertyOverrideList.EMPTY) {
+			// the overrides hold baked models of their own
+			return null;
+		}
+
+		return new BasicBakedModel(remapper.remap(quads), remapper.remap(faceQuads), usesAo, depthInGui, remapper.remap(sprite), transformation, itemPropertyOverrides);
 	}
-}
\ No newline at end of file
+}
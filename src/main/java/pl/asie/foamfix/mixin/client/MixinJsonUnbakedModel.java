@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.mixin.client;
+
+import net.minecraft.client.render.model.json.JsonUnbakedModel;
+import net.minecraft.client.render.model.json.ModelElement;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Mutable;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import pl.asie.foamfix.FoamFixConfig;
+import pl.asie.foamfix.client.UnbakedModelDeduplicator;
+
+import java.util.List;
+import java.util.Map;
+
+@Mixin(JsonUnbakedModel.class)
+public class MixinJsonUnbakedModel {
+	@Shadow
+	@Final
+	private List<ModelElement> elements;
+	@Shadow
+	@Final
+	@Mutable
+	public Map<String, String> textureMap;
+
+	@Inject(method = "<init>", at = @At("RETURN"))
+	public void construct(CallbackInfo info) {
+		if (FoamFixConfig.dedupUnbakedModels) {
+			UnbakedModelDeduplicator.deduplicateElements(elements);
+			textureMap = UnbakedModelDeduplicator.deduplicateTextureMap(textureMap);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.mixin.client;
+
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.ModelBakeSettings;
+import net.minecraft.client.render.model.ModelLoader;
+import net.minecraft.client.render.model.ModelRotation;
+import net.minecraft.client.render.model.UnbakedModel;
+import net.minecraft.client.texture.SpriteAtlasTexture;
+import net.minecraft.client.util.ModelIdentifier;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Mutable;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import pl.asie.foamfix.FoamFixConfig;
+import pl.asie.foamfix.client.IncrementalModelReloader;
+import pl.asie.foamfix.client.LazyBakedModel;
+import pl.asie.foamfix.client.LazyBakedModelCache;
+import pl.asie.foamfix.client.LazyModelBaker;
+import pl.asie.foamfix.client.PinningBakedModelCache;
+import pl.asie.foamfix.client.UnbakedModelDeduplicator;
+
+import java.util.Map;
+
+@Mixin(ModelLoader.class)
+public abstract class MixinModelLoader implements LazyModelBaker {
+	@Shadow
+	@Final
+	@Mutable
+	private Map<Object, BakedModel> bakedModelCache;
+	@Shadow
+	private ResourceManager resourceManager;
+	@Shadow
+	private SpriteAtlasTexture spriteAtlas;
+
+	@Shadow
+	public abstract BakedModel bake(Identifier identifier, ModelBakeSettings settings);
+	@Shadow
+	public abstract UnbakedModel getOrLoadModel(Identifier identifier);
+
+	private LazyBakedModelCache foamfix_lazyCache;
+	private IncrementalModelReloader foamfix_reloader;
+	private boolean foamfix_bakingEagerly;
+
+	@Inject(at = @At(value = "INVOKE", target = "Ljava/lang/Object;<init>()V", shift = At.Shift.AFTER), method = "<init>")
+	public void beforeConstruct(CallbackInfo info) {
+		UnbakedModelDeduplicator.begin();
+	}
+
+	@Inject(at = @At("HEAD"), method = "bake", cancellable = true)
+	public void beforeBake(Identifier identifier, ModelBakeSettings settings, CallbackInfoReturnable<BakedModel> info) {
+		if (foamfix_bakingEagerly || ModelLoader.MISSING.equals(identifier)) {
+			return;
+		}
+
+		if (FoamFixConfig.lazyModelBaking) {
+			if (foamfix_lazyCache == null) {
+				foamfix_lazyCache = LazyBakedModelCache.replace(FoamFixConfig.lazyModelCacheSize);
+				bakedModelCache = new PinningBakedModelCache(bakedModelCache);
+			}
+
+			info.setReturnValue(new LazyBakedModel(this, foamfix_lazyCache, identifier, settings));
+			info.cancel();
+		} else if (FoamFixConfig.incrementalModelReload && identifier instanceof ModelIdentifier) {
+			// only block state and item models are tracked; their dependencies are covered by the fingerprint
+			if (foamfix_reloader == null) {
+				foamfix_reloader = new IncrementalModelReloader(resourceManager, spriteAtlas, bakedModelCache, this::getOrLoadModel);
+			}
+
+			info.setReturnValue(foamfix_reloader.bake(identifier, settings, (id) -> foamfix_bakeDirectly(id, settings)));
+			info.cancel();
+		}
+	}
+
+	@Inject(at = @At("HEAD"), method = "getBakedModelMap")
+	public void beforeGetBakedModelMap(CallbackInfoReturnable<Map<Identifier, BakedModel>> info) {
+		if (foamfix_reloader != null) {
+			foamfix_reloader.finish();
+			foamfix_reloader = null;
+		}
+
+		UnbakedModelDeduplicator.finish();
+	}
+
+	private BakedModel foamfix_bakeDirectly(Identifier identifier, ModelBakeSettings settings) {
+		foamfix_bakingEagerly = true;
+		try {
+			return bake(identifier, settings);
+		} finally {
+			foamfix_bakingEagerly = false;
+		}
+	}
+
+	@Override
+	public synchronized BakedModel foamfix_bakeEagerly(Identifier identifier, ModelBakeSettings settings) {
+		BakedModel model = null;
+
+		try {
+			try {
+				model = foamfix_bakeDirectly(identifier, settings);
+			} catch (Exception e) {
+				System.err.println("[FoamFix/LazyBakedModel] Could not bake model " + identifier + "!");
+				e.printStackTrace();
+			}
+
+			if (model == null) {
+				// vanilla would not have registered this model at all, resulting in the missing model
+				model = bake(ModelLoader.MISSING, ModelRotation.X0_Y0);
+			}
+		} finally {
+			((PinningBakedModelCache) bakedModelCache).unpinAll();
+		}
+
+		return model;
+	}
+}
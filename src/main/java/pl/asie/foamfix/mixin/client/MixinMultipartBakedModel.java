@@ -38,10 +38,15 @@ import net.minecraft.client.render.model.json.ModelTransformation;
 import net.minecraft.client.texture.Sprite;
 import net.minecraft.util.math.Direction;
 import org.apache.commons.lang3.tuple.Pair;
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import pl.asie.foamfix.client.RemappableBakedModel;
+import pl.asie.foamfix.client.SpriteRemapper;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -49,11 +54,39 @@ import java.util.Map;
 import java.util.function.Predicate;
 
 @Mixin(MultipartBakedModel.class)
-public class MixinMultipartBakedModel {
+public class MixinMultipartBakedModel implements RemappableBakedModel {
+	@Shadow
+	@Final
+	private List<Pair<Predicate<BlockState>, BakedModel>> components;
+
+	@Inject(method = "<init>", at = @At(value = "INVOKE", target = "Ljava/lang/Object;<init>()V", shift = At.Shift.AFTER))
+	public void beforeConstruct(CallbackInfo info) {
+		FoamyEvents.beginBakedModel();
+	}
+
 	@Inject(method = "<init>", at = @At("RETURN"))
 	public void construct(List<Pair<Predicate<BlockState>, BakedModel>> list_1, CallbackInfo info) {
+		boolean trimmed = false;
+
 		if (list_1 instanceof ArrayList) {
 			((ArrayList) list_1).trimToSize();
+			trimmed = true;
 		}
+
+		FoamyEvents.bakedModelCreated(this, 1, trimmed ? 1 : 0);
+	}
+
+	@Override
+	public BakedModel foamfix_remap(SpriteRemapper remapper) {
+		List<Pair<Predicate<BlockState>, BakedModel>> remapped = new ArrayList<>(components.size());
+		for (Pair<Predicate<BlockState>, BakedModel> pair : components) {
+			BakedModel model = remapper.remap(pair.getRight());
+			if (model == null) {
+				return null;
+			}
+			remapped.add(Pair.of(pair.getLeft(), model));
+		}
+
+		return new MultipartBakedModel(remapped);
 	}
-}
\ No newline at end of file
+}
@@ -33,21 +33,54 @@ import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.client.render.model.MultipartBakedModel;
 import net.minecraft.client.render.model.WeightedBakedModel;
 import org.apache.commons.lang3.tuple.Pair;
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import pl.asie.foamfix.client.RemappableBakedModel;
+import pl.asie.foamfix.client.SpriteRemapper;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
 
 @Mixin(WeightedBakedModel.class)
-public class MixinWeightedBakedModel {
+public class MixinWeightedBakedModel implements RemappableBakedModel {
+	@Shadow
+	@Final
+	private List models;
+
+	@Inject(method = "<init>", at = @At(value = "INVOKE", target = "Ljava/lang/Object;<init>()V", shift = At.Shift.AFTER))
+	public void beforeConstruct(CallbackInfo info) {
+		FoamyEvents.beginBakedModel();
+	}
+
 	@Inject(method = "<init>", at = @At("RETURN"))
 	public void construct(List list_1, CallbackInfo info) {
+		boolean trimmed = false;
+
 		if (list_1 instanceof ArrayList) {
 			((ArrayList) list_1).trimToSize();
+			trimmed = true;
 		}
+
+		FoamyEvents.bakedModelCreated(this, 1, trimmed ? 1 : 0);
+	}
+
+	@Override
+	public BakedModel foamfix_remap(SpriteRemapper remapper) {
+		WeightedBakedModel.Builder builder = new WeightedBakedModel.Builder();
+		for (Object entry : models) {
+			BakedModel model = remapper.remap(((AccessorWeightedModelEntry) entry).foamfix_getModel());
+			if (model == null) {
+				return null;
+			}
+			builder.add(model, ((AccessorWeightedPickerEntry) entry).foamfix_getWeight());
+		}
+
+		return builder.build();
 	}
-}
\ No newline at end of file
+}
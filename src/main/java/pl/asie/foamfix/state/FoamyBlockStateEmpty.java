@@ -32,16 +32,20 @@ import com.google.common.collect.ImmutableMap;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.state.property.Property;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.Map;
 
 public class FoamyBlockStateEmpty extends BlockState {
+	short flags;
+
 	public FoamyBlockStateEmpty(Block blockIn) {
 		super(blockIn, ImmutableMap.of());
 	}
 
 	@Override
 	public <T extends Comparable<T>, V extends T> BlockState with(Property<T> property, V value) {
+		FoamyEvents.stateLookupFailed(this.getBlock(), property, value);
 		throw new IllegalArgumentException("Cannot set property " + property + " as it does not exist in " + this.getBlock());
 	}
 
@@ -49,4 +53,11 @@ public class FoamyBlockStateEmpty extends BlockState {
 	public void createWithTable(Map<Map<Property<?>, Comparable<?>>, BlockState> map_1) {
 
 	}
+
+	@Override
+	public void initShapeCache() {
+		super.initShapeCache();
+		ShapeCacheDeduplicator.deduplicate(this);
+		flags = StateFlags.compute(this);
+	}
 }
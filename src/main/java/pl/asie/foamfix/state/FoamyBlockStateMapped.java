@@ -32,6 +32,7 @@ import com.google.common.collect.*;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.state.property.Property;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.Map;
 
@@ -39,6 +40,7 @@ public class FoamyBlockStateMapped extends BlockState {
 	protected final PropertyValueMapper<BlockState> owner;
 	protected final ImmutableMap<Property<?>, Comparable<?>> properties;
 	protected int value;
+	short flags;
 
 	public FoamyBlockStateMapped(PropertyValueMapperImpl<BlockState> owner, Block blockIn, ImmutableMap<Property<?>, Comparable<?>> propertiesIn) {
 		super(blockIn, propertiesIn);
@@ -51,6 +53,7 @@ public class FoamyBlockStateMapped extends BlockState {
 		BlockState state = owner.with(this.value, property, value);
 
 		if (state == null) {
+			FoamyEvents.stateLookupFailed(this.getBlock(), property, value);
 			Comparable<?> comparable = this.properties.get(property);
 			if (comparable == null) {
 				throw new IllegalArgumentException("Cannot set property " + property + " as it does not exist in " + this.getBlock());
@@ -66,4 +69,11 @@ public class FoamyBlockStateMapped extends BlockState {
 	public void createWithTable(Map<Map<Property<?>, Comparable<?>>, BlockState> map_1) {
 		this.value = owner.generateValue(this);
 	}
+
+	@Override
+	public void initShapeCache() {
+		super.initShapeCache();
+		ShapeCacheDeduplicator.deduplicate(this);
+		flags = StateFlags.compute(this);
+	}
 }
@@ -35,6 +35,7 @@ import net.minecraft.state.AbstractPropertyContainer;
 import net.minecraft.state.PropertyContainer;
 import net.minecraft.state.StateFactory;
 import net.minecraft.state.property.Property;
+import pl.asie.foamfix.util.FoamyEvents;
 
 import java.util.Map;
 import java.util.function.Function;
@@ -79,7 +80,9 @@ public class FoamyStateFactory<O, S extends PropertyContainer<S>> extends StateF
 			}
 
 			if (mapper == null) {
-				mapper = new PropertyValueMapperImpl<>(var2.keySet());
+				Object event = FoamyEvents.beginMapperCreated();
+				mapper = new PropertyValueMapperImpl<>(StateLayoutOptimizer.getLayout(var2.keySet()));
+				FoamyEvents.mapperCreated(event, var1, var2.size(), mapper.getTableSize());
 			}
 
 			return factory.create(mapper, var1, var2);
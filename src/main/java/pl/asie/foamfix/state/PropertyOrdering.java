@@ -1,8 +1,6 @@
 package pl.asie.foamfix.state;
 
 import com.google.common.collect.Lists;
-import it.unimi.dsi.fastutil.ints.Int2IntMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
@@ -11,18 +9,23 @@ import net.minecraft.state.property.EnumProperty;
 import net.minecraft.state.property.IntegerProperty;
 import net.minecraft.state.property.Property;
 import net.minecraft.util.math.MathHelper;
+import pl.asie.foamfix.api.PropertyIndexer;
+import pl.asie.foamfix.api.PropertyIndexers;
 import pl.asie.foamfix.util.HashingStrategies;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PropertyOrdering {
 	public static abstract class Entry {
 		final Property property;
 		final int bitSize;
 		final int bits;
+		final LongAdder accesses;
 
 		private Entry(Property property) {
 			this.property = property;
+			this.accesses = StateLayoutOptimizer.PROFILING ? new LongAdder() : null;
 
 			this.bitSize = MathHelper.smallestEncompassingPowerOfTwo(property.getValues().size());
 			int bits = 0;
@@ -102,11 +105,37 @@ public class PropertyOrdering {
 			if (entry.getValues().size() == values.length) {
 				return new EnumEntrySorted(entry, values.length);
 			} else {
-				return new ObjectEntry(entry, true);
+				return new EnumEntrySubset(entry, values);
 			}
 		}
 	}
 
+	public static class EnumEntrySubset extends Entry {
+		private final Object[] constants;
+		private final int[] indices;
+
+		private EnumEntrySubset(Property property, Object[] constants) {
+			super(property);
+
+			this.constants = constants;
+			this.indices = new int[constants.length];
+			Arrays.fill(this.indices, -1);
+			Collection<Object> allowedValues = property.getValues();
+
+			int i = 0;
+			for (Object o : allowedValues) {
+				this.indices[((Enum) o).ordinal()] = i++;
+			}
+		}
+
+		@Override
+		public int get(Object v) {
+			int ordinal = ((Enum) v).ordinal();
+			// the identity check also rejects constants of other enums
+			return (ordinal < constants.length && constants[ordinal] == v) ? indices[ordinal] : -1;
+		}
+	}
+
 	public static class IntegerEntrySorted extends Entry {
 		private final int minValue, count;
 
@@ -126,24 +155,22 @@ public class PropertyOrdering {
 	}
 
 	public static class IntegerEntry extends Entry {
-		private Int2IntMap values;
+		private final int[] values;
 
-		private IntegerEntry(Property property) {
+		private IntegerEntry(Property property, List<Integer> sorted) {
 			super(property);
 
-			this.values = new Int2IntOpenHashMap();
-			this.values.defaultReturnValue(-1);
-			Collection<Object> allowedValues = property.getValues();
-
-			int i = 0;
-			for (Object o : allowedValues) {
-				this.values.put((int) o, i++);
+			this.values = new int[sorted.size()];
+			for (int i = 0; i < values.length; i++) {
+				this.values[i] = sorted.get(i);
 			}
 		}
 
 		@Override
 		public int get(Object v) {
-			return values.get(v);
+			// indices are assigned in sorted order, not in the property's iteration order
+			int index = Arrays.binarySearch(values, (int) v);
+			return index >= 0 ? index : -1;
 		}
 
 		public static Entry create(IntegerProperty entry) {
@@ -153,7 +180,7 @@ public class PropertyOrdering {
 			int min = sorted.get(0);
 			for (int i = 1; i < sorted.size(); i++) {
 				if ((sorted.get(i) - sorted.get(i - 1)) != 1) {
-					return new IntegerEntry(entry);
+					return new IntegerEntry(entry, sorted);
 				}
 			}
 
@@ -161,23 +188,68 @@ public class PropertyOrdering {
 		}
 	}
 
+	public static class IndexerEntry extends Entry {
+		private final PropertyIndexer indexer;
+		private final int size;
+
+		private IndexerEntry(Property property, PropertyIndexer indexer) {
+			super(property);
+			this.indexer = indexer;
+			this.size = property.getValues().size();
+		}
+
+		@Override
+		public int get(Object v) {
+			// only allowed values are validated up front - anything out of range would corrupt other properties' bits
+			int index = indexer.getIndex(v);
+			return (index >= 0 && index < size) ? index : -1;
+		}
+
+		public static Entry create(Property property, PropertyIndexer indexer) {
+			int size = property.getValues().size();
+			BitSet used = new BitSet(size);
+
+			for (Object o : property.getValues()) {
+				int index = indexer.getIndex(o);
+				if (index < 0 || index >= size || used.get(index)) {
+					System.err.println("[FoamFix/PropertyOrdering] Indexer for " + property + " returned invalid index " + index + " for " + o + ", ignoring!");
+					return null;
+				}
+				used.set(index);
+			}
+
+			return new IndexerEntry(property, indexer);
+		}
+	}
+
 	private PropertyOrdering() {
 
 	}
 
 	private static final Map<Property, Entry> entryMap = new IdentityHashMap<>();
 
+	static Collection<Entry> getEntries() {
+		return entryMap.values();
+	}
+
 	static Entry getEntry(Property property) {
 		Entry e = entryMap.get(property);
 		if (e == null) {
-			if (property instanceof IntegerProperty) {
-				e = IntegerEntry.create((IntegerProperty) property);
-			} else if (property.getClass() == BooleanProperty.class && property.getValues().size() == 2) {
-				e = new BooleanEntry(property);
-			} else if (property instanceof EnumProperty) {
-				e = EnumEntrySorted.create((EnumProperty) property);
-			} else {
-				e = new ObjectEntry(property, false);
+			PropertyIndexer indexer = PropertyIndexers.create(property);
+			if (indexer != null) {
+				e = IndexerEntry.create(property, indexer);
+			}
+
+			if (e == null) {
+				if (property instanceof IntegerProperty) {
+					e = IntegerEntry.create((IntegerProperty) property);
+				} else if (property.getClass() == BooleanProperty.class && property.getValues().size() == 2) {
+					e = new BooleanEntry(property);
+				} else if (property instanceof EnumProperty) {
+					e = EnumEntrySorted.create((EnumProperty) property);
+				} else {
+					e = new ObjectEntry(property, false);
+				}
 			}
 			entryMap.put(property, e);
 		}
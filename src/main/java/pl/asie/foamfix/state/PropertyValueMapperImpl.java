@@ -28,7 +28,6 @@
 
 package pl.asie.foamfix.state;
 
-import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntArrayMap;
@@ -46,32 +45,21 @@ import pl.asie.foamfix.util.HashingStrategies;
 import java.util.*;
 
 public class PropertyValueMapperImpl<C extends PropertyContainer<C>> implements PropertyValueMapper<C> {
-	private static final Comparator<? super Property<?>> COMPARATOR_BIT_FITNESS = (Comparator<Property<?>>) (first, second) -> {
-		int diff1 = PropertyOrdering.getEntry(first).bitSize - first.getValues().size();
-		int diff2 = PropertyOrdering.getEntry(second).bitSize - second.getValues().size();
-		// We want to put properties with higher diff-values last,
-		// so that the array is as small as possible.
-		if (diff1 == diff2) {
-			return first.getName().compareTo(second.getName());
-		} else {
-			return diff1 - diff2;
-		}
-	};
-
 	private final PropertyOrdering.Entry[] entryList;
 	private final Object2IntOpenHashMap<String> entryPositionMap;
 	private final PropertyContainer[] stateMap;
 
-	public PropertyValueMapperImpl(Collection<Property<?>> properties) {
-		entryList = new PropertyOrdering.Entry[properties.size()];
-		List<Property<?>> propertiesSortedFitness = Lists.newArrayList(properties);
-		propertiesSortedFitness.sort(COMPARATOR_BIT_FITNESS);
+	/**
+	 * @param layout The properties, from the lowest bits to the highest - see StateLayoutOptimizer.
+	 */
+	public PropertyValueMapperImpl(List<Property<?>> layout) {
+		entryList = new PropertyOrdering.Entry[layout.size()];
 		int i = 0;
-		for (Property p : propertiesSortedFitness) {
+		for (Property p : layout) {
 			entryList[i++] = PropertyOrdering.getEntry(p);
 		}
 
-		entryPositionMap = new Object2IntOpenHashMap<>(properties.size());
+		entryPositionMap = new Object2IntOpenHashMap<>(layout.size());
 		entryPositionMap.defaultReturnValue(-1);
 
 		int bitPos = 0;
@@ -105,6 +93,7 @@ public class PropertyValueMapperImpl<C extends PropertyContainer<C>> implements
 		int bitPos = entryPositionMap.getInt(property.getName());
 		if (bitPos >= 0) {
 			PropertyOrdering.Entry e = PropertyOrdering.getEntry(property);
+			if (StateLayoutOptimizer.PROFILING) e.accesses.increment();
 			int nv = e.get(propertyValue);
 			if (nv < 0) return null;
 
@@ -118,6 +107,10 @@ public class PropertyValueMapperImpl<C extends PropertyContainer<C>> implements
 		return null;
 	}
 
+	public int getTableSize() {
+		return stateMap.length;
+	}
+
 	public C getPropertyByValue(int value) {
 		//noinspection unchecked
 		return (C) stateMap[value];
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.state;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.shape.VoxelShape;
+import pl.asie.foamfix.FoamFixConfig;
+import pl.asie.foamfix.util.DeduplicatingStorage;
+import pl.asie.foamfix.util.FoamyEvents;
+import pl.asie.foamfix.util.HashingStrategies;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonicalizes the VoxelShape objects (and arrays thereof) held by each BlockState's
+ * shape cache. This is not render-specific, so it also lowers dedicated server heap.
+ *
+ * The shape cache class is not referenced by name, as it is a private inner class
+ * of BlockState - its fields are discovered by type instead.
+ */
+public final class ShapeCacheDeduplicator {
+	private static final DeduplicatingStorage<VoxelShape> SHAPES = new DeduplicatingStorage<>("VoxelShape", HashingStrategies.FASTUTIL_VOXEL_SHAPE);
+	private static final DeduplicatingStorage<Object[]> SHAPE_ARRAYS = new DeduplicatingStorage<>("VoxelShape[]", HashingStrategies.FASTUTIL_ARRAY_IDENTITY);
+	private static final DeduplicatingStorage<boolean[]> BOOLEAN_ARRAYS = new DeduplicatingStorage<>("boolean[]", HashingStrategies.FASTUTIL_BOOLEAN_ARRAY);
+
+	private static Field cacheField;
+	private static Field[] shapeFields, shapeArrayFields, booleanArrayFields;
+	private static boolean initialized, enabled;
+	private static int statesProcessed;
+
+	private ShapeCacheDeduplicator() {
+
+	}
+
+	private static void initialize() {
+		initialized = true;
+		if (!FoamFixConfig.dedupShapeCaches) {
+			return;
+		}
+
+		for (Field f : BlockState.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(f.getModifiers()) && f.getType().getEnclosingClass() == BlockState.class) {
+				cacheField = f;
+				break;
+			}
+		}
+
+		if (cacheField == null) {
+			System.err.println("[FoamFix/ShapeCacheDeduplicator] Could not find BlockState shape cache field - deduplication disabled!");
+			return;
+		}
+
+		List<Field> shapes = new ArrayList<>();
+		List<Field> shapeArrays = new ArrayList<>();
+		List<Field> booleanArrays = new ArrayList<>();
+
+		for (Field f : cacheField.getType().getDeclaredFields()) {
+			if (Modifier.isStatic(f.getModifiers())) {
+				continue;
+			}
+
+			if (f.getType() == VoxelShape.class) {
+				shapes.add(f);
+			} else if (f.getType() == VoxelShape[].class) {
+				shapeArrays.add(f);
+			} else if (f.getType() == boolean[].class) {
+				booleanArrays.add(f);
+			} else {
+				continue;
+			}
+
+			f.setAccessible(true);
+		}
+
+		cacheField.setAccessible(true);
+		shapeFields = shapes.toArray(new Field[0]);
+		shapeArrayFields = shapeArrays.toArray(new Field[0]);
+		booleanArrayFields = booleanArrays.toArray(new Field[0]);
+		enabled = true;
+	}
+
+	public static void deduplicate(BlockState state) {
+		if (!initialized) {
+			initialize();
+		}
+
+		if (!enabled) {
+			return;
+		}
+
+		try {
+			Object cache = cacheField.get(state);
+			if (cache == null) {
+				// blocks with dynamic bounds do not have a shape cache
+				return;
+			}
+
+			for (Field f : shapeFields) {
+				f.set(cache, SHAPES.deduplicate((VoxelShape) f.get(cache)));
+			}
+
+			for (Field f : shapeArrayFields) {
+				VoxelShape[] array = (VoxelShape[]) f.get(cache);
+				if (array != null) {
+					for (int i = 0; i < array.length; i++) {
+						array[i] = SHAPES.deduplicate(array[i]);
+					}
+					f.set(cache, SHAPE_ARRAYS.deduplicate(array));
+				}
+			}
+
+			for (Field f : booleanArrayFields) {
+				f.set(cache, BOOLEAN_ARRAYS.deduplicate((boolean[]) f.get(cache)));
+			}
+
+			statesProcessed++;
+		} catch (IllegalAccessException e) {
+			System.err.println("[FoamFix/ShapeCacheDeduplicator] Could not access shape cache - deduplication disabled!");
+			e.printStackTrace();
+			enabled = false;
+		}
+	}
+
+	public static void report() {
+		if (!enabled) {
+			return;
+		}
+
+		System.out.println("[FoamFix/ShapeCacheDeduplicator] Processed " + statesProcessed + " block states: "
+				+ SHAPES + ", " + SHAPE_ARRAYS + ", " + BOOLEAN_ARRAYS);
+		FoamyEvents.deduplicated(SHAPES);
+		FoamyEvents.deduplicated(SHAPE_ARRAYS);
+		FoamyEvents.deduplicated(BOOLEAN_ARRAYS);
+
+		// shape caches are only initialized alongside Blocks, so the pools are not needed anymore
+		SHAPES.clear();
+		SHAPE_ARRAYS.clear();
+		BOOLEAN_ARRAYS.clear();
+		enabled = false;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.state;
+
+import net.minecraft.block.BlockRenderType;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.PackedIntegerArray;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockView;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.Palette;
+import pl.asie.foamfix.mixin.state.AccessorPalettedContainer;
+
+/**
+ * Precomputed per-state answers to the questions chunk meshing and lighting ask
+ * most often. Foamy block states keep them in a field, so that a lookup touches
+ * neither the state's shape cache nor its block.
+ *
+ * Flags are computed as the states' shape caches are initialized; states which
+ * have not been through that (blocks registered after vanilla's) have them
+ * computed on first use instead.
+ *
+ * Shape-derived flags (FULL_OPAQUE) are computed the same way as the vanilla
+ * shape cache, and are never set alongside DYNAMIC_SHAPE.
+ * Render layers are client-only and per-block in this version, so they are not
+ * included.
+ */
+public final class StateFlags {
+	public static final int AIR = 1;
+	public static final int OPAQUE = 1 << 1;
+	public static final int FULL_OPAQUE = 1 << 2;
+	public static final int RANDOM_TICKS = 1 << 3;
+	public static final int EMITS_LIGHT = 1 << 4;
+	public static final int HAS_BLOCK_ENTITY = 1 << 5;
+	public static final int HAS_FLUID = 1 << 6;
+	public static final int MODEL_RENDER = 1 << 7;
+	public static final int DYNAMIC_SHAPE = 1 << 8;
+	/**
+	 * Set on every computed flag word, telling it apart from one not computed yet.
+	 */
+	public static final int COMPUTED = 1 << 15;
+
+	public static final int SECTION_SIZE = 16 * 16 * 16;
+
+	private static final int PALETTE_CACHE_SIZE = 256;
+
+	private StateFlags() {
+
+	}
+
+	static short compute(BlockState state) {
+		int flags = COMPUTED;
+
+		if (state.getBlock().hasDynamicBounds()) {
+			flags |= DYNAMIC_SHAPE;
+		} else if (state.isFullOpaque(EmptyBlockView.INSTANCE, BlockPos.ORIGIN)) {
+			// dynamic shapes are never queried here - they may depend on the world
+			flags |= FULL_OPAQUE;
+		}
+
+		if (state.isAir()) flags |= AIR;
+		if (state.isOpaque()) flags |= OPAQUE;
+		if (state.hasRandomTicks()) flags |= RANDOM_TICKS;
+		if (state.getLuminance() > 0) flags |= EMITS_LIGHT;
+		if (state.getBlock().hasBlockEntity()) flags |= HAS_BLOCK_ENTITY;
+		if (!state.getFluidState().isEmpty()) flags |= HAS_FLUID;
+		if (state.getRenderType() == BlockRenderType.MODEL) flags |= MODEL_RENDER;
+
+		return (short) flags;
+	}
+
+	public static int get(BlockState state) {
+		if (state instanceof FoamyBlockStateMapped) {
+			FoamyBlockStateMapped s = (FoamyBlockStateMapped) state;
+			if ((s.flags & COMPUTED) == 0) {
+				s.flags = compute(state);
+			}
+			return s.flags & 0xFFFF;
+		} else if (state instanceof FoamyBlockStateEmpty) {
+			FoamyBlockStateEmpty s = (FoamyBlockStateEmpty) state;
+			if ((s.flags & COMPUTED) == 0) {
+				s.flags = compute(state);
+			}
+			return s.flags & 0xFFFF;
+		} else {
+			return compute(state) & 0xFFFF;
+		}
+	}
+
+	public static boolean has(BlockState state, int flag) {
+		return (get(state) & flag) != 0;
+	}
+
+	/**
+	 * Fills out[] with the flags of every state in a chunk section, in (y << 8 | z << 4 | x)
+	 * order. Flags are resolved once per palette entry, then looked up by the section's
+	 * packed palette indices.
+	 *
+	 * @return A summary of the section - see {@link #any(int, int)} and {@link #all(int, int)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static int gather(ChunkSection section, short[] out) {
+		AccessorPalettedContainer container = (AccessorPalettedContainer) section.getContainer();
+		Palette<BlockState> palette = (Palette<BlockState>) container.foamfix_getPalette();
+		PackedIntegerArray data = container.foamfix_getData();
+		short[] paletteFlags = new short[PALETTE_CACHE_SIZE];
+
+		int union = 0;
+		int intersection = 0xFFFF;
+
+		for (int i = 0; i < SECTION_SIZE; i++) {
+			int index = data.get(i);
+			int flags = index < PALETTE_CACHE_SIZE ? (paletteFlags[index] & 0xFFFF) : 0;
+
+			if (flags == 0) {
+				// indices past the cache only occur with the global palette
+				flags = getFromPalette(palette, index);
+				if (index < PALETTE_CACHE_SIZE) {
+					paletteFlags[index] = (short) flags;
+				}
+			}
+
+			out[i] = (short) flags;
+			union |= flags;
+			intersection &= flags;
+		}
+
+		return union | (intersection << 16);
+	}
+
+	private static int getFromPalette(Palette<BlockState> palette, int index) {
+		BlockState state = palette.getByIndex(index);
+		// mirrors PalettedContainer.get()
+		return get(state != null ? state : Blocks.AIR.getDefaultState());
+	}
+
+	public static boolean any(int summary, int flag) {
+		return (summary & flag) != 0;
+	}
+
+	public static boolean all(int summary, int flag) {
+		return ((summary >>> 16) & flag) == flag;
+	}
+}
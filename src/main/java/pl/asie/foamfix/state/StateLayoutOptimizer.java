@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.state;
+
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.state.property.Property;
+import pl.asie.foamfix.FoamFixConfig;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Chooses the bit layout of each block's state table.
+ *
+ * The table is sized (2^bits of all properties but the last) * (value count of the last
+ * property), so it is smallest when the last property is the one which wastes the largest
+ * fraction of its power-of-two range. The order of the other properties does not affect
+ * the size; if an access profile is available (see stateLayoutProfiling), the most
+ * frequently changed properties are placed in the lowest bits.
+ */
+public final class StateLayoutOptimizer {
+	static final boolean PROFILING = FoamFixConfig.stateLayoutProfiling;
+
+	private static final Comparator<? super Property<?>> COMPARATOR_BIT_FITNESS = (Comparator<Property<?>>) (first, second) -> {
+		int diff1 = PropertyOrdering.getEntry(first).bitSize - first.getValues().size();
+		int diff2 = PropertyOrdering.getEntry(second).bitSize - second.getValues().size();
+		// We want to put properties with higher diff-values last,
+		// so that the array is as small as possible.
+		if (diff1 == diff2) {
+			return first.getName().compareTo(second.getName());
+		} else {
+			return diff1 - diff2;
+		}
+	};
+
+	private static final File PROFILE_FILE = new File(FabricLoader.getInstance().getConfigDirectory(), "foamfix-state-profile.properties");
+	private static final Object2LongMap<String> profile = loadProfile();
+	private static final Comparator<Property<?>> COMPARATOR_ACCESS = (first, second) ->
+			Long.compare(profile.getLong(second.getName()), profile.getLong(first.getName()));
+
+	private static int layouts, layoutsImproved;
+	private static long slotsBefore, slotsAfter;
+
+	private StateLayoutOptimizer() {
+
+	}
+
+	static {
+		if (PROFILING) {
+			Runtime.getRuntime().addShutdownHook(new Thread(StateLayoutOptimizer::saveProfile, "FoamFix state profile writer"));
+		}
+	}
+
+	public static List<Property<?>> getLayout(Collection<Property<?>> properties) {
+		List<Property<?>> fitnessLayout = new ArrayList<>(properties);
+		fitnessLayout.sort(COMPARATOR_BIT_FITNESS);
+
+		List<Property<?>> layout = new ArrayList<>(properties);
+		if (profile.isEmpty()) {
+			layout.sort(COMPARATOR_BIT_FITNESS);
+		} else {
+			layout.sort(COMPARATOR_ACCESS.thenComparing(COMPARATOR_BIT_FITNESS));
+		}
+
+		Property<?> last = null;
+		for (Property<?> p : layout) {
+			// prefer later properties on ties, so that hot properties stay in the low bits
+			if (last == null || (long) p.getValues().size() * PropertyOrdering.getEntry(last).bitSize
+					<= (long) last.getValues().size() * PropertyOrdering.getEntry(p).bitSize) {
+				last = p;
+			}
+		}
+
+		if (last != null) {
+			layout.remove(last);
+			layout.add(last);
+		}
+
+		int sizeBefore = getTableSize(fitnessLayout);
+		int sizeAfter = getTableSize(layout);
+		layouts++;
+		slotsBefore += sizeBefore;
+		slotsAfter += sizeAfter;
+		if (sizeAfter < sizeBefore) {
+			layoutsImproved++;
+		}
+
+		return layout;
+	}
+
+	static int getTableSize(List<Property<?>> layout) {
+		if (layout.isEmpty()) {
+			return 1;
+		}
+
+		int bits = 0;
+		for (int i = 0; i < layout.size() - 1; i++) {
+			bits += PropertyOrdering.getEntry(layout.get(i)).bits;
+		}
+		return (1 << bits) * layout.get(layout.size() - 1).getValues().size();
+	}
+
+	/**
+	 * Reports the layouts chosen since the previous report, if any. Vanilla's blocks are
+	 * reported as soon as they are initialized, while modded blocks are only registered
+	 * afterwards, so they get a separate report once the game is running.
+	 */
+	public static void report(String stage) {
+		if (layouts == 0) {
+			return;
+		}
+
+		System.out.println("[FoamFix/StateLayoutOptimizer] Chose " + layouts + " state table layouts for " + stage + " (" + layoutsImproved + " smaller than by bit fitness alone): "
+				+ slotsAfter + " slots, down from " + slotsBefore + (profile.isEmpty() ? "" : ", using access profile " + PROFILE_FILE.getName()));
+		layouts = layoutsImproved = 0;
+		slotsBefore = slotsAfter = 0;
+	}
+
+	private static Object2LongMap<String> loadProfile() {
+		Object2LongMap<String> map = new Object2LongOpenHashMap<>();
+		if (!PROFILE_FILE.exists()) {
+			return map;
+		}
+
+		Properties properties = new Properties();
+		try (Reader reader = new FileReader(PROFILE_FILE)) {
+			properties.load(reader);
+			for (String key : properties.stringPropertyNames()) {
+				map.put(key, Long.parseLong(properties.getProperty(key).trim()));
+			}
+		} catch (IOException | NumberFormatException e) {
+			System.err.println("[FoamFix/StateLayoutOptimizer] Could not read " + PROFILE_FILE + ", ignoring!");
+			e.printStackTrace();
+			map.clear();
+		}
+
+		return map;
+	}
+
+	/**
+	 * Accesses are counted per property name, merging equally-named properties across
+	 * blocks, and added on top of the previously loaded profile.
+	 */
+	private static void saveProfile() {
+		Object2LongMap<String> counts = new Object2LongOpenHashMap<>(profile);
+		for (PropertyOrdering.Entry e : PropertyOrdering.getEntries()) {
+			String name = e.property.getName();
+			counts.put(name, counts.getLong(name) + e.accesses.sum());
+		}
+
+		Properties properties = new Properties();
+		for (Object2LongMap.Entry<String> entry : counts.object2LongEntrySet()) {
+			properties.setProperty(entry.getKey(), Long.toString(entry.getLongValue()));
+		}
+
+		try (Writer writer = new FileWriter(PROFILE_FILE)) {
+			properties.store(writer, "FoamFix block state property access counts");
+		} catch (IOException e) {
+			System.err.println("[FoamFix/StateLayoutOptimizer] Could not write " + PROFILE_FILE + "!");
+			e.printStackTrace();
+		}
+	}
+}
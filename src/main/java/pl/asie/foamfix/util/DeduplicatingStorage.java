@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.util;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+
+public class DeduplicatingStorage<T> {
+	private final String name;
+	private final Object2ObjectOpenCustomHashMap<T, T> storage;
+	private int hits, misses;
+
+	public DeduplicatingStorage(String name, Hash.Strategy<? super T> strategy) {
+		this.name = name;
+		this.storage = new Object2ObjectOpenCustomHashMap<>(strategy);
+	}
+
+	public T deduplicate(T o) {
+		if (o == null) {
+			return null;
+		}
+
+		T stored = storage.putIfAbsent(o, o);
+		if (stored == null) {
+			misses++;
+			return o;
+		} else {
+			if (stored != o) {
+				hits++;
+			}
+			return stored;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	public int size() {
+		return storage.size();
+	}
+
+	public void clear() {
+		storage.clear();
+		storage.trim();
+		hits = 0;
+		misses = 0;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + hits + " duplicates removed, " + storage.size() + " unique";
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.util;
+
+import pl.asie.foamfix.FoamFixConfig;
+
+/**
+ * Reports FoamFix's hot paths as Java Flight Recorder events. The JFR-backed sink is
+ * only loaded if jdk.jfr is present, so none of this costs more than a no-op call on
+ * runtimes without it - or while no recording is running.
+ */
+public final class FoamyEvents {
+	public interface Sink {
+		Object beginMapperCreated();
+
+		void endMapperCreated(Object event, String owner, int propertyCount, int tableSize);
+
+		void stateLookupFailed(String owner, String property, String value);
+
+		void beginBakedModel();
+
+		void endBakedModel(String type, int quadListCount, int trimmedListCount);
+
+		void deduplicated(DeduplicatingStorage<?> storage);
+	}
+
+	private static final Sink NOOP = new Sink() {
+		@Override
+		public Object beginMapperCreated() {
+			return null;
+		}
+
+		@Override
+		public void endMapperCreated(Object event, String owner, int propertyCount, int tableSize) {
+
+		}
+
+		@Override
+		public void stateLookupFailed(String owner, String property, String value) {
+
+		}
+
+		@Override
+		public void beginBakedModel() {
+
+		}
+
+		@Override
+		public void endBakedModel(String type, int quadListCount, int trimmedListCount) {
+
+		}
+
+		@Override
+		public void deduplicated(DeduplicatingStorage<?> storage) {
+
+		}
+	};
+
+	private static final Sink SINK = createSink();
+
+	private FoamyEvents() {
+
+	}
+
+	private static Sink createSink() {
+		if (!FoamFixConfig.jfrEvents) {
+			return NOOP;
+		}
+
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+		} catch (ClassNotFoundException e) {
+			return NOOP;
+		}
+
+		try {
+			return (Sink) Class.forName("pl.asie.foamfix.util.jfr.JfrEventSink").getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			// this must never prevent the game from starting
+			System.err.println("[FoamFix/FoamyEvents] Could not initialize Flight Recorder events!");
+			t.printStackTrace();
+			return NOOP;
+		}
+	}
+
+	/**
+	 * @return An event to pass to {@link #mapperCreated}, or null if it is not being recorded.
+	 */
+	public static Object beginMapperCreated() {
+		return SINK.beginMapperCreated();
+	}
+
+	public static void mapperCreated(Object event, Object owner, int propertyCount, int tableSize) {
+		if (event != null) {
+			SINK.endMapperCreated(event, owner.getClass().getName(), propertyCount, tableSize);
+		}
+	}
+
+	public static void stateLookupFailed(Object owner, Object property, Object value) {
+		if (SINK != NOOP) {
+			SINK.stateLookupFailed(String.valueOf(owner), String.valueOf(property), String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Called at the start of a baked model's constructor; the matching
+	 * {@link #bakedModelCreated} call must happen on the same thread.
+	 */
+	public static void beginBakedModel() {
+		SINK.beginBakedModel();
+	}
+
+	public static void bakedModelCreated(Object model, int quadListCount, int trimmedListCount) {
+		if (SINK != NOOP) {
+			SINK.endBakedModel(model.getClass().getName(), quadListCount, trimmedListCount);
+		}
+	}
+
+	public static void deduplicated(DeduplicatingStorage<?> storage) {
+		SINK.deduplicated(storage);
+	}
+}
@@ -54,6 +54,10 @@
 package pl.asie.foamfix.util;
 
 import it.unimi.dsi.fastutil.Hash;
+import net.minecraft.util.shape.VoxelShape;
+
+import java.util.Arrays;
+import java.util.Objects;
 
 public final class HashingStrategies {
     public static final Hash.Strategy<Object> FASTUTIL_IDENTITY = new Hash.Strategy<Object>() {
@@ -67,4 +71,90 @@ public final class HashingStrategies {
             return a == b;
         }
     };
+
+    public static final Hash.Strategy<Object> FASTUTIL_OBJECT = new Hash.Strategy<Object>() {
+        @Override
+        public int hashCode(Object o) {
+            return Objects.hashCode(o);
+        }
+
+        @Override
+        public boolean equals(Object a, Object b) {
+            return Objects.equals(a, b);
+        }
+    };
+
+    public static final Hash.Strategy<Object[]> FASTUTIL_ARRAY_IDENTITY = new Hash.Strategy<Object[]>() {
+        @Override
+        public int hashCode(Object[] o) {
+            int hash = 1;
+            for (Object e : o) {
+                hash = 31 * hash + System.identityHashCode(e);
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object[] a, Object[] b) {
+            if (a == b) {
+                return true;
+            } else if (a == null || b == null || a.length != b.length || a.getClass() != b.getClass()) {
+                return false;
+            }
+
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    public static final Hash.Strategy<boolean[]> FASTUTIL_BOOLEAN_ARRAY = new Hash.Strategy<boolean[]>() {
+        @Override
+        public int hashCode(boolean[] o) {
+            return Arrays.hashCode(o);
+        }
+
+        @Override
+        public boolean equals(boolean[] a, boolean[] b) {
+            return Arrays.equals(a, b);
+        }
+    };
+
+    public static final Hash.Strategy<float[]> FASTUTIL_FLOAT_ARRAY = new Hash.Strategy<float[]>() {
+        @Override
+        public int hashCode(float[] o) {
+            return Arrays.hashCode(o);
+        }
+
+        @Override
+        public boolean equals(float[] a, float[] b) {
+            return Arrays.equals(a, b);
+        }
+    };
+
+    /**
+     * Two shapes are considered equal if they are of the same class and decompose
+     * into the same list of boxes. This is stricter than geometric equality, but
+     * it is cheap and never merges shapes which could behave differently.
+     */
+    public static final Hash.Strategy<VoxelShape> FASTUTIL_VOXEL_SHAPE = new Hash.Strategy<VoxelShape>() {
+        @Override
+        public int hashCode(VoxelShape o) {
+            return o == null ? 0 : (31 * o.getClass().hashCode() + o.getBoundingBoxes().hashCode());
+        }
+
+        @Override
+        public boolean equals(VoxelShape a, VoxelShape b) {
+            if (a == b) {
+                return true;
+            } else if (a == null || b == null || a.getClass() != b.getClass()) {
+                return false;
+            } else {
+                return a.getBoundingBoxes().equals(b.getBoundingBoxes());
+            }
+        }
+    };
 }
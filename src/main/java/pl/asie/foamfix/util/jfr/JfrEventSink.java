@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016, 2017, 2018, 2019 Adrian Siekierka
+ *
+ * This file is part of FoamFix.
+ *
+ * FoamFix is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FoamFix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FoamFix.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with the Minecraft game engine, the Mojang Launchwrapper,
+ * the Mojang AuthLib and the Minecraft Realms library (and/or modified
+ * versions of said software), containing parts covered by the terms of
+ * their respective licenses, the licensors of this Program grant you
+ * additional permission to convey the resulting work.
+ */
+
+package pl.asie.foamfix.util.jfr;
+
+import jdk.jfr.EventType;
+import pl.asie.foamfix.util.DeduplicatingStorage;
+import pl.asie.foamfix.util.FoamyEvents;
+
+public class JfrEventSink implements FoamyEvents.Sink {
+	// checked before allocating an event, so that nothing is allocated while not recording
+	private final EventType mapperCreated = EventType.getEventType(MapperCreatedEvent.class);
+	private final EventType stateLookupFailed = EventType.getEventType(StateLookupFailedEvent.class);
+	private final EventType bakedModelCreated = EventType.getEventType(BakedModelCreatedEvent.class);
+	private final EventType deduplicated = EventType.getEventType(DeduplicationEvent.class);
+	private final ThreadLocal<BakedModelCreatedEvent> currentBakedModel = new ThreadLocal<>();
+
+	@Override
+	public Object beginMapperCreated() {
+		if (mapperCreated.isEnabled()) {
+			MapperCreatedEvent event = new MapperCreatedEvent();
+			event.begin();
+			return event;
+		} else {
+			return null;
+		}
+	}
+
+	@Override
+	public void endMapperCreated(Object e, String owner, int propertyCount, int tableSize) {
+		MapperCreatedEvent event = (MapperCreatedEvent) e;
+		event.end();
+		event.owner = owner;
+		event.propertyCount = propertyCount;
+		event.tableSize = tableSize;
+		event.commit();
+	}
+
+	@Override
+	public void stateLookupFailed(String owner, String property, String value) {
+		if (stateLookupFailed.isEnabled()) {
+			StateLookupFailedEvent event = new StateLookupFailedEvent();
+			event.owner = owner;
+			event.property = property;
+			event.value = value;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void beginBakedModel() {
+		if (bakedModelCreated.isEnabled()) {
+			BakedModelCreatedEvent event = new BakedModelCreatedEvent();
+			event.begin();
+			currentBakedModel.set(event);
+		}
+	}
+
+	@Override
+	public void endBakedModel(String type, int quadListCount, int trimmedListCount) {
+		BakedModelCreatedEvent event = currentBakedModel.get();
+		if (event != null) {
+			currentBakedModel.set(null);
+			event.end();
+			event.type = type;
+			event.quadListCount = quadListCount;
+			event.trimmedListCount = trimmedListCount;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void deduplicated(DeduplicatingStorage<?> storage) {
+		if (deduplicated.isEnabled()) {
+			DeduplicationEvent event = new DeduplicationEvent();
+			event.pool = storage.getName();
+			event.hits = storage.getHits();
+			event.misses = storage.getMisses();
+			event.size = storage.size();
+			event.commit();
+		}
+	}
+}